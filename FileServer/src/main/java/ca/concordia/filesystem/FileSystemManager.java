@@ -1,7 +1,9 @@
 package ca.concordia.filesystem;
 
+import ca.concordia.filesystem.datastructures.ArrayMetadataStore;
 import ca.concordia.filesystem.datastructures.FEntry;
 import ca.concordia.filesystem.datastructures.FNode;
+import ca.concordia.filesystem.datastructures.MetadataStore;
 
 import java.io.RandomAccessFile;
 
@@ -13,14 +15,15 @@ private final int BLOCK_SIZE;
 
    private final RandomAccessFile disk;
 
-    private FEntry[] fileEntries;    // For file entries
-    private FNode[] fileNodes;       // For file nodes
-    private boolean[] freeBlockList; // For free blocks
+    private MetadataStore metadata;  // For file entries, block chains and free blocks
 
 
     //using hashmap to store contents of WRITE command that can be READ
     private java.util.HashMap<String, byte[]> file_contents = new java.util.HashMap<>();
 
+    //old contents of the names a batch changes, null value if the name had none, null map outside a batch
+    private java.util.HashMap<String, byte[]> contents_undo;
+
 
 //lock for synchronization
 private final Object file_lock = new Object();
@@ -41,20 +44,8 @@ private final Object file_lock = new Object();
         if (disk.length() > 0) {
             load_from_disk();
         } else {
-            fileEntries = new FEntry[MAXFILES];
-            for (int i = 0; i < MAXFILES; i++) {
-                fileEntries[i] = new FEntry();
-            }
-            
-            fileNodes = new FNode[MAXBLOCKS];
-            for (int i = 0; i < MAXBLOCKS; i++) {
-                fileNodes[i] = new FNode(-1);
-            }
-            
-            freeBlockList = new boolean[MAXBLOCKS];
-            for (int i = 0; i < MAXBLOCKS; i++) {
-                freeBlockList[i] = true;
-            }
+            //new store has every slot empty and every block free
+            metadata = new ArrayMetadataStore(MAXFILES, MAXBLOCKS);
             
             save_to_disk();
         }
@@ -63,74 +54,65 @@ private final Object file_lock = new Object();
     }
 
     private void save_to_disk() throws Exception {
+        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(metadata.get_disk_size());
+        metadata.save_to(buffer);
+
+        //one write for the whole metadata instead of one per field
         disk.seek(0);
-        
-        //save all file entries
-        for (int i = 0; i < MAXFILES; i++) {
-            FEntry entry = fileEntries[i];
-            
-            //save filename (11 b max)
-            String filename = entry.getFilename();
-            byte[] nameBytes = new byte[11];
-            byte[] originalName = filename.getBytes();
-            System.arraycopy(originalName, 0, nameBytes, 0, Math.min(11, originalName.length));
-            disk.write(nameBytes);
-            
-            disk.writeShort(entry.getFilesize());
-            
-            disk.writeShort(entry.getFirstBlock());
-        }
-        
-        for (int i = 0; i < MAXBLOCKS; i++) {
-            FNode node = fileNodes[i];
-            disk.writeInt(node.getBlockIndex());
-            disk.writeInt(node.getNext());
-        }
+        disk.write(buffer.array());
         
         System.out.println("file system saved to disk");
     }
 
-    //loading file system from the disk
+    //loading file system from the disk with one bulk read into the metadata store
     private void load_from_disk() throws Exception {
+        metadata = new ArrayMetadataStore(MAXFILES, MAXBLOCKS);
+        byte[] bytes = new byte[metadata.get_disk_size()];
         disk.seek(0);
+        disk.readFully(bytes);
+        metadata.load_from(java.nio.ByteBuffer.wrap(bytes));
         
-        fileEntries = new FEntry[MAXFILES];
-        fileNodes = new FNode[MAXBLOCKS];
-        freeBlockList = new boolean[MAXBLOCKS];
-        
-        //load all file entries
+        System.out.println("File system loaded from disk");
+    }
+
+    //getting a view of the file entry in a slot
+    private FEntry get_entry(int slot) {
+        return new FEntry(metadata, slot);
+    }
+
+    //getting a view of a block
+    private FNode get_node(int block) {
+        return new FNode(metadata, block);
+    }
+
+    //checking the name of a slot without building a String
+    private boolean slot_has_name(int slot, String fileName) {
+        return metadata.filename_equals(slot, fileName.getBytes(FEntry.NAME_CHARSET));
+    }
+
+    //finding the slot of a file, -1 if it doesn't exist
+    private int find_entry(String fileName) {
+        return find_entry(fileName.getBytes(FEntry.NAME_CHARSET));
+    }
+
+    //finding the slot of an already encoded name
+    private int find_entry(byte[] nameBytes) {
         for (int i = 0; i < MAXFILES; i++) {
-            //read filename 
-            byte[] nameBytes = new byte[11];
-            disk.read(nameBytes);
-            String filename = new String(nameBytes).trim();
-            
-            short fileSize = disk.readShort();
-           
-            short firstBlock = disk.readShort();
-            
-            fileEntries[i] = new FEntry(filename, fileSize, firstBlock);
-        }
-        
-        for (int i = 0; i < MAXBLOCKS; i++) {
-            int blockIndex = disk.readInt();
-            int next = disk.readInt();
-            fileNodes[i] = new FNode(blockIndex);
-            fileNodes[i].setNext(next);
-            freeBlockList[i] = (blockIndex == -1);
+            if (metadata.filename_equals(i, nameBytes)) {
+                return i;
+            }
         }
-        
-        System.out.println("File system loaded from disk");
+        return -1;
     }
 
     //checking if block is free
 /*private boolean is_block_free(int blockIndex) {
-    return freeBlockList[blockIndex];
+    return metadata.is_block_free(blockIndex);
 } */
 
 //marking the free block
 private void mark_free_block(int blockIndex) {
-    freeBlockList[blockIndex] = true;
+    get_node(blockIndex).setBlockIndex(-1);
 }
 
 //writing zeroes to memory
@@ -140,17 +122,12 @@ private void clear_block_data(int blockIndex) {
 
 //finding free block
 private int find_free_block() {
-    for (int i = 0; i < MAXBLOCKS; i++) {
-        if (freeBlockList[i]) {
-            return i;
-        }
-    }
-    return -1; //no free block found
+    return metadata.next_free_block(); //-1 if no free block found
 }
 
 //marking block as used
 private void used_block(int blockIndex) {
-    freeBlockList[blockIndex] = false;
+    get_node(blockIndex).setBlockIndex(blockIndex);
 }
 
 //calculating blocks needed
@@ -165,31 +142,36 @@ private int calculate_blocks_needed(int dataSize) {
   //create file method
     public void create_file(String fileName) throws Exception {
         synchronized(file_lock){ //synchronized to prevent race condition while creating file
-        try {
-            if (fileName.length() > 11) {
-                throw new Exception("ERR: file is too large");
-            }
-            //checking if file alrteady exists
-            for (FEntry entry : fileEntries) {
-                if (fileName.equals(entry.getFilename())) {
-                    throw new Exception("ERR: file already exists");
-                }
-            }
-            //finding empty slot in file enteries array
-            for (int i = 0; i < MAXFILES; i++) {
-                if (fileEntries[i].getFilename().trim().isEmpty()) {
-                    fileEntries[i].setFilename(fileName);
-                    fileEntries[i].setFilesize((short)0);
-                    fileEntries[i].setFirstBlock((short)-1); //no data blocks added
-                    System.out.println("Created: " + fileName);
-                    save_to_disk();
-                    return;
-                }
-            }
-            
-            throw new Exception("ERR: no space");
-        } finally {} } //lock released
+            create_entry(fileName);
+            save_to_disk();
+        } //lock released
+    }
+
+//creating the file entry, caller must hold file_lock and save to disk
+private void create_entry(String fileName) throws Exception {
+    //names are stored as bytes, so the limit is 11 encoded bytes
+    byte[] nameBytes = fileName.getBytes(FEntry.NAME_CHARSET);
+    if (nameBytes.length > 11) {
+        throw new Exception("ERR: file is too large");
+    }
+    //checking if file alrteady exists
+    if (find_entry(nameBytes) != -1) {
+        throw new Exception("ERR: file already exists");
     }
+    //finding empty slot in file enteries array
+    for (int i = 0; i < MAXFILES; i++) {
+        if (slot_has_name(i, "")) {
+            FEntry entry = get_entry(i);
+            entry.setFilename(fileName);
+            entry.setFilesize((short)0);
+            entry.setFirstBlock((short)-1); //no data blocks added
+            System.out.println("Created: " + fileName);
+            return;
+        }
+    }
+
+    throw new Exception("ERR: no space");
+}
 
 
 //list files method
@@ -198,8 +180,8 @@ public String[] list_files() {
     
     try {
         int count = 0;
-        for (FEntry entry : fileEntries) {
-            if (!entry.getFilename().trim().isEmpty()) {
+        for (int i = 0; i < MAXFILES; i++) {
+            if (!slot_has_name(i, "")) {
                 count++;
             }
         }
@@ -207,9 +189,9 @@ public String[] list_files() {
         String[] files = new String[count];
         int index = 0;
         
-        for (FEntry entry : fileEntries) {
-            if (!entry.getFilename().trim().isEmpty()) {
-                files[index] = entry.getFilename();
+        for (int i = 0; i < MAXFILES; i++) {
+            if (!slot_has_name(i, "")) {
+                files[index] = get_entry(i).getFilename();
                 index++;
             }
         }
@@ -225,45 +207,47 @@ public String[] list_files() {
 // delete method
 public void delete_file(String fileName) throws Exception {
    synchronized(file_lock){
+        delete_entry(fileName);
+        save_to_disk();
+      }
+}
 
-        //looking for the file
-        for (int i = 0; i < MAXFILES; i++) {
-            if (fileName.equals(fileEntries[i].getFilename())) {
-                short firstBlock = fileEntries[i].getFirstBlock();
-                
-                //freeing blocks used by this file
-                if (firstBlock != -1) {
-                    int currentBlock = firstBlock;
-                    
-                    while (currentBlock != -1) {
-                        //overwriting with zeroes
-                        clear_block_data(currentBlock);
-                        //freeing the block
-                        mark_free_block(currentBlock);
-                        
-                        FNode currentNode = fileNodes[currentBlock];
-                        currentBlock = currentNode.getNext();
-                        
-                        currentNode.setBlockIndex(-1);
-                        currentNode.setNext(-1);
-                    }
-                }
-                
-                //removing the file entry
-                fileEntries[i].setFilename("");
-                fileEntries[i].setFilesize((short)0);
-                fileEntries[i].setFirstBlock((short)-1);
-                
-                System.out.println("Deleted: " + fileName );
-                save_to_disk();
-                file_contents.remove(fileName);  //remove content from HashMap
-                return;
+//removing the file entry and its blocks, caller must hold file_lock and save to disk
+private void delete_entry(String fileName) throws Exception {
+    //looking for the file
+    int slot = find_entry(fileName);
+    if (slot != -1) {
+        FEntry entry = get_entry(slot);
+        short firstBlock = entry.getFirstBlock();
+
+        //freeing blocks used by this file
+        if (firstBlock != -1) {
+            int currentBlock = firstBlock;
+
+            while (currentBlock != -1) {
+                //overwriting with zeroes
+                clear_block_data(currentBlock);
+                //freeing the block
+                mark_free_block(currentBlock);
+
+                FNode currentNode = get_node(currentBlock);
+                currentBlock = currentNode.getNext();
+                currentNode.setNext(-1);
             }
         }
-        
-        throw new Exception("ERR: file " + fileName + " doesn't exist");
 
-      }
+        //removing the file entry
+        entry.setFilename("");
+        entry.setFilesize((short)0);
+        entry.setFirstBlock((short)-1);
+
+        System.out.println("Deleted: " + fileName );
+        log_contents(fileName);
+        file_contents.remove(fileName);  //remove content from HashMap
+        return;
+    }
+
+    throw new Exception("ERR: file " + fileName + " doesn't exist");
 }
 
 
@@ -274,137 +258,218 @@ public byte[] read_file(String fileName) throws Exception {
          //debug statements
         System.out.println("read lock acq: "+fileName);
 
+        return read_entry(fileName);
+     }
+}
 
-        //finding the file
-        FEntry file_to_read = null;
-        for (FEntry entry : fileEntries) {
-            if (fileName.equals(entry.getFilename())) {
-                file_to_read = entry;
-                break;
-            }
-        }
-        
-        if (file_to_read == null) {
-            throw new Exception("ERR: file " + fileName + " does not exist");
-        }
-        
-        if (file_to_read.getFirstBlock() == -1) { //return empty if file has no content
-            return new byte[0];
+//reading many files under one lock acquisition, for MREAD
+public byte[][] read_files(String[] fileNames) throws Exception {
+    synchronized(file_lock){
+        byte[][] contents = new byte[fileNames.length][];
+        for (int i = 0; i < fileNames.length; i++) {
+            contents[i] = read_entry(fileNames[i]);
         }
-        
-        //counting blocks used by this file
-        int fileSize = file_to_read.getFilesize();
-        int currentBlock = file_to_read.getFirstBlock();
-        int bytesRead = 0;
-        
-        System.out.println("Reading file: " + fileName + " (" + fileSize + " bytes)");
+        return contents;
+    }
+}
+
+//reading the file content, caller must hold file_lock
+private byte[] read_entry(String fileName) throws Exception {
+    //finding the file
+    int slot = find_entry(fileName);
+    FEntry file_to_read = slot == -1 ? null : get_entry(slot);
+    
+    if (file_to_read == null) {
+        throw new Exception("ERR: file " + fileName + " does not exist");
+    }
+    
+    if (file_to_read.getFirstBlock() == -1) { //return empty if file has no content
+        return new byte[0];
+    }
+    
+    //counting blocks used by this file
+    int fileSize = file_to_read.getFilesize();
+    int currentBlock = file_to_read.getFirstBlock();
+    int bytesRead = 0;
+    
+    System.out.println("Reading file: " + fileName + " (" + fileSize + " bytes)");
       
-        //calculating total size
-        while (currentBlock != -1 && bytesRead < fileSize) {
-            FNode currentNode = fileNodes[currentBlock];
-            System.out.println("  Reading from block " + currentBlock);
-            
-            int block_bytes = Math.min(BLOCK_SIZE, fileSize - bytesRead);
-            bytesRead += block_bytes;
-            
-            currentBlock = currentNode.getNext();
-        }
+    //calculating total size
+    while (currentBlock != -1 && bytesRead < fileSize) {
+        System.out.println("  Reading from block " + currentBlock);
         
-        //get file contents from hashmap
-        if (file_contents.containsKey(fileName)) {
-            byte[] content = file_contents.get(fileName); //this to read actual content from the txt files- fixed
-            System.out.println("Successfully read " + content.length + " bytes from " + fileName);
-            return content;
-        } else {
-            return new byte[0];  
-        }
-     }
+        int block_bytes = Math.min(BLOCK_SIZE, fileSize - bytesRead);
+        bytesRead += block_bytes;
+        
+        currentBlock = get_node(currentBlock).getNext();
+    }
+    
+    //get file contents from hashmap
+    if (file_contents.containsKey(fileName)) {
+        byte[] content = file_contents.get(fileName); //this to read actual content from the txt files- fixed
+        System.out.println("Successfully read " + content.length + " bytes from " + fileName);
+        return content;
+    } else {
+        return new byte[0];  
+    }
 }
 
 
 //write method
 public void write_file(String fileName, byte[] content) throws Exception {
     synchronized(file_lock) {
+        write_entry(fileName, content);
+        save_to_disk();
+    }
+}
 
-        //finding file entry
-        FEntry file_to_write = null;
-        for (FEntry entry : fileEntries) {
-            if (fileName.equals(entry.getFilename())) {
-                file_to_write = entry;
-                break;
-            }
-        }
-        if (file_to_write == null) {
-            throw new Exception("ERR: file " + fileName + " does not exist");
-        }
+//writing content to the file blocks, caller must hold file_lock and save to disk
+private void write_entry(String fileName, byte[] content) throws Exception {
+    //finding file entry
+    int slot = find_entry(fileName);
+    FEntry file_to_write = slot == -1 ? null : get_entry(slot);
+    if (file_to_write == null) {
+        throw new Exception("ERR: file " + fileName + " does not exist");
+    }
 
-        file_contents.put(fileName, content);  //to store actual file content in hashmap
+    log_contents(fileName);
+    file_contents.put(fileName, content);  //to store actual file content in hashmap
 
-        //calculating reqiured blocks to write and cheching available space
-        int blocksNeeded = calculate_blocks_needed(content.length);
-        int freeBlocks = 0;
-        for (boolean free : freeBlockList) {
-            if (free) freeBlocks++;
+    //calculating reqiured blocks to write and cheching available space
+    int blocksNeeded = calculate_blocks_needed(content.length);
+    int freeBlocks = metadata.free_block_count();
+    
+    if (blocksNeeded > freeBlocks) {
+        throw new Exception("ERR: not enough free blocks");
+    }
+    
+    //fixed write method, freeing exisiting blocks for overwrite
+    if (file_to_write.getFirstBlock() != -1) {
+        short firstBlock = file_to_write.getFirstBlock();
+        int currentBlock = firstBlock;
+       
+        while (currentBlock != -1) {
+            FNode currentNode = get_node(currentBlock);
+            int nextBlock = currentNode.getNext();
+            
+            //clear block data
+            clear_block_data(currentBlock);
+            //mark as free
+            mark_free_block(currentBlock);
+           //reset node metadata
+            currentNode.setNext(-1);
+            
+            currentBlock = nextBlock;
         }
         
-        if (blocksNeeded > freeBlocks) {
-            throw new Exception("ERR: not enough free blocks");
+        //reseting file metadata
+        file_to_write.setFilesize((short)0);
+        file_to_write.setFirstBlock((short)-1);
+    }
+       
+    
+    //allocating blocks for rewrite
+    int firstBlock = -1;
+    int previousBlock = -1;
+    
+    for (int i = 0; i < blocksNeeded; i++) {
+        int freeBlock = find_free_block();
+        if (freeBlock == -1) {
+            throw new Exception("ERR: no free blocks");
         }
         
-        //fixed write method, freeing exisiting blocks for overwrite
-        if (file_to_write.getFirstBlock() != -1) {
-            short firstBlock = file_to_write.getFirstBlock();
-            int currentBlock = firstBlock;
-           
-            while (currentBlock != -1) {
-                FNode currentNode = fileNodes[currentBlock];
-                int nextBlock = currentNode.getNext();
-                
-                //clear block data
-                clear_block_data(currentBlock);
-                //mark as free
-                mark_free_block(currentBlock);
-               //reset node metadata
-                currentNode.setBlockIndex(-1);
-                currentNode.setNext(-1);
-                
-                currentBlock = nextBlock;
-            }
-            
-            //reseting file metadata
-            file_to_write.setFilesize((short)0);
-            file_to_write.setFirstBlock((short)-1);
-        }
+        used_block(freeBlock);
        
+        if (firstBlock == -1) {
+            firstBlock = freeBlock;
+            file_to_write.setFirstBlock((short)freeBlock);
+        } else {
+            get_node(previousBlock).setNext(freeBlock);
+        }
         
-        //allocating blocks for rewrite
-        int firstBlock = -1;
-        int previousBlock = -1;
-        
-        for (int i = 0; i < blocksNeeded; i++) {
-            int freeBlock = find_free_block();
-            if (freeBlock == -1) {
-                throw new Exception("ERR: no free blocks");
+        previousBlock = freeBlock;
+    }
+    
+    //updating file size
+    file_to_write.setFilesize((short)content.length);
+    
+    System.out.println("Written " + content.length + " bytes to " + fileName + 
+                      " using " + blocksNeeded + " blocks");
+}
+
+
+//saving the old content the first time a batch changes a name
+private void log_contents(String fileName) {
+    if (contents_undo != null && !contents_undo.containsKey(fileName)) {
+        contents_undo.put(fileName, file_contents.get(fileName));
+    }
+}
+
+
+//one mutation of a batch, command is CREATE, DELETE or WRITE
+public static class BatchOp {
+    private final String command;
+    private final String fileName;
+    private final byte[] content;
+
+    public BatchOp(String command, String fileName, byte[] content) {
+        this.command = command;
+        this.fileName = fileName;
+        this.content = content;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+}
+
+//applying a group of mutations all-or-nothing under one lock and one save to disk
+//used by MCREATE, MWRITE, MDELETE and BEGIN/COMMIT
+public void apply_batch(java.util.List<BatchOp> ops) throws Exception {
+    synchronized(file_lock) {
+        //undo log of the slots and blocks the batch touches, so a failing op can roll back the whole batch
+        metadata.start_undo_log();
+        contents_undo = new java.util.HashMap<>();
+
+        try {
+            for (BatchOp op : ops) {
+                switch (op.command) {
+                    case "CREATE":
+                        create_entry(op.fileName);
+                        break;
+                    case "DELETE":
+                        delete_entry(op.fileName);
+                        break;
+                    case "WRITE":
+                        write_entry(op.fileName, op.content);
+                        break;
+                    default:
+                        throw new Exception("ERR: unknown batch command " + op.command);
+                }
             }
-            
-            used_block(freeBlock);
-            fileNodes[freeBlock].setBlockIndex(freeBlock);
-           
-            if (firstBlock == -1) {
-                firstBlock = freeBlock;
-                file_to_write.setFirstBlock((short)freeBlock);
-            } else {
-                fileNodes[previousBlock].setNext(freeBlock);
+        } catch (Exception e) {
+            //rolling back, nothing was saved to disk yet
+            metadata.roll_back();
+            for (java.util.Map.Entry<String, byte[]> undo : contents_undo.entrySet()) {
+                if (undo.getValue() == null) {
+                    file_contents.remove(undo.getKey());
+                } else {
+                    file_contents.put(undo.getKey(), undo.getValue());
+                }
             }
-            
-            previousBlock = freeBlock;
+            contents_undo = null;
+            throw e;
         }
-        
-        //updating file size
-        file_to_write.setFilesize((short)content.length);
-        
-        System.out.println("Written " + content.length + " bytes to " + fileName + 
-                          " using " + blocksNeeded + " blocks");
+        metadata.drop_undo_log();
+        contents_undo = null;
 
         save_to_disk();
     }
@@ -0,0 +1,202 @@
+package ca.concordia.filesystem.datastructures;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+//metadata kept in primitive arrays, one int per block instead of one FNode object
+public class ArrayMetadataStore implements MetadataStore {
+
+    private static final int NAME_SIZE = 11;
+    private static final int ENTRY_SIZE = FEntry.get_disk_size();
+
+    private final int maxFiles;
+    private final int maxBlocks;
+
+    private final ByteBuffer entries;  // file entries off-heap in disk layout, decoded on access
+    private final int[] next;          // -1 for end of chain
+    private final BitSet freeBlocks;   // set bit means block is free
+
+    //undo log, only holds slots and blocks changed by the current batch
+    private boolean logging;
+    private final BitSet loggedSlots = new BitSet();
+    private final BitSet loggedBlocks = new BitSet();
+    private final List<SlotUndo> slotUndos = new ArrayList<>();
+    private final List<BlockUndo> blockUndos = new ArrayList<>();
+
+    private static class SlotUndo {
+        final int slot;
+        final byte[] entry;
+
+        SlotUndo(int slot, byte[] entry) {
+            this.slot = slot;
+            this.entry = entry;
+        }
+    }
+
+    private static class BlockUndo {
+        final int block;
+        final int next;
+        final boolean free;
+
+        BlockUndo(int block, int next, boolean free) {
+            this.block = block;
+            this.next = next;
+            this.free = free;
+        }
+    }
+
+    public ArrayMetadataStore(int maxFiles, int maxBlocks) {
+        this.maxFiles = maxFiles;
+        this.maxBlocks = maxBlocks;
+        this.entries = ByteBuffer.allocateDirect(maxFiles * ENTRY_SIZE);
+        for (int i = 0; i < maxFiles; i++) {
+            entries.putShort(i * ENTRY_SIZE + NAME_SIZE + 2, (short)-1); //empty slot has no first block
+        }
+        this.next = new int[maxBlocks];
+        Arrays.fill(next, -1);
+        this.freeBlocks = new BitSet(maxBlocks);
+        freeBlocks.set(0, maxBlocks);
+    }
+
+    public String getFilename(int slot) {
+        byte[] nameBytes = new byte[NAME_SIZE];
+        entries.get(slot * ENTRY_SIZE, nameBytes);
+        return new String(nameBytes, FEntry.NAME_CHARSET).trim();
+    }
+
+    public void setFilename(int slot, String filename) {
+        byte[] originalName = filename.getBytes(FEntry.NAME_CHARSET);
+        if (originalName.length > NAME_SIZE) {
+            throw new IllegalArgumentException("file name cannot be longer than 11 bytes.");
+        }
+        log_slot(slot);
+        byte[] nameBytes = new byte[NAME_SIZE];
+        System.arraycopy(originalName, 0, nameBytes, 0, originalName.length);
+        entries.put(slot * ENTRY_SIZE, nameBytes);
+    }
+
+    public boolean filename_equals(int slot, byte[] filename) {
+        if (filename.length > NAME_SIZE) {
+            return false;
+        }
+        int offset = slot * ENTRY_SIZE;
+        for (int i = 0; i < NAME_SIZE; i++) {
+            byte b = entries.get(offset + i);
+            if (i < filename.length ? b != filename[i] : (b & 0xff) > ' ') { //trailing padding is trimmed like getFilename
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public short getFilesize(int slot) {
+        return entries.getShort(slot * ENTRY_SIZE + NAME_SIZE);
+    }
+
+    public void setFilesize(int slot, short filesize) {
+        log_slot(slot);
+        entries.putShort(slot * ENTRY_SIZE + NAME_SIZE, filesize);
+    }
+
+    public short getFirstBlock(int slot) {
+        return entries.getShort(slot * ENTRY_SIZE + NAME_SIZE + 2);
+    }
+
+    public void setFirstBlock(int slot, short firstBlock) {
+        log_slot(slot);
+        entries.putShort(slot * ENTRY_SIZE + NAME_SIZE + 2, firstBlock);
+    }
+
+    public int getNext(int block) {
+        return next[block];
+    }
+
+    public void setNext(int block, int next) {
+        log_block(block);
+        this.next[block] = next;
+    }
+
+    public boolean is_block_free(int block) {
+        return freeBlocks.get(block);
+    }
+
+    public void set_block_free(int block, boolean free) {
+        log_block(block);
+        freeBlocks.set(block, free);
+    }
+
+    public int next_free_block() {
+        return freeBlocks.nextSetBit(0);
+    }
+
+    public int free_block_count() {
+        return freeBlocks.cardinality();
+    }
+
+    //layout: per slot 11b name, 2b size, 2b first block, then per block 4b index (-1 if free) and 4b next
+    public void load_from(ByteBuffer buffer) {
+        //entries are copied as they are, one bulk copy
+        entries.put(0, buffer, buffer.position(), maxFiles * ENTRY_SIZE);
+        buffer.position(buffer.position() + maxFiles * ENTRY_SIZE);
+        for (int i = 0; i < maxBlocks; i++) {
+            freeBlocks.set(i, buffer.getInt() == -1);
+            next[i] = buffer.getInt();
+        }
+    }
+
+    public void save_to(ByteBuffer buffer) {
+        buffer.put(entries.duplicate().clear());
+        for (int i = 0; i < maxBlocks; i++) {
+            buffer.putInt(freeBlocks.get(i) ? -1 : i);
+            buffer.putInt(next[i]);
+        }
+    }
+
+    public int get_disk_size() {
+        return maxFiles * ENTRY_SIZE + maxBlocks * 8;
+    }
+
+    public void start_undo_log() {
+        drop_undo_log();
+        logging = true;
+    }
+
+    public void roll_back() {
+        for (SlotUndo undo : slotUndos) {
+            entries.put(undo.slot * ENTRY_SIZE, undo.entry);
+        }
+        for (BlockUndo undo : blockUndos) {
+            next[undo.block] = undo.next;
+            freeBlocks.set(undo.block, undo.free);
+        }
+        drop_undo_log();
+    }
+
+    public void drop_undo_log() {
+        logging = false;
+        loggedSlots.clear();
+        loggedBlocks.clear();
+        slotUndos.clear();
+        blockUndos.clear();
+    }
+
+    //saving the old value the first time a slot changes in a batch
+    private void log_slot(int slot) {
+        if (logging && !loggedSlots.get(slot)) {
+            loggedSlots.set(slot);
+            byte[] entry = new byte[ENTRY_SIZE];
+            entries.get(slot * ENTRY_SIZE, entry);
+            slotUndos.add(new SlotUndo(slot, entry));
+        }
+    }
+
+    private void log_block(int block) {
+        if (logging && !loggedBlocks.get(block)) {
+            loggedBlocks.set(block);
+            blockUndos.add(new BlockUndo(block, next[block], freeBlocks.get(block)));
+        }
+    }
+}
@@ -1,69 +1,61 @@
 package ca.concordia.filesystem.datastructures;
 
-public class FEntry { //
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 
-    private String filename;
-    private short filesize;
-    private short firstBlock; // Pointers to data blocks
+public class FEntry { //
 
-    public FEntry(String filename, short filesize, short firstblock) throws IllegalArgumentException{
-        //Check filename is max 11 bytes long
-        if (filename.length() > 11) {
-            throw new IllegalArgumentException("file name cannot be longer than 11 strings.");
-        }
-        this.filename = filename;
-        this.filesize = filesize;
-        this.firstBlock = firstblock;
-    }
+    //charset of file names on disk, the 11 byte limit counts encoded bytes
+    public static final Charset NAME_CHARSET = StandardCharsets.UTF_8;
 
-    //default constructorbloading frm disk
-    public FEntry(){
+    private final MetadataStore store;
+    private final int slot; // Index of this entry in the store
 
-        this.filename =" ";
-        this.filesize = 0;
-        this.firstBlock = -1;
+    public FEntry(MetadataStore store, int slot) {
+        this.store = store;
+        this.slot = slot;
     }
 
     // Getters and Setters
     public String getFilename() {
-        return filename;
+        return store.getFilename(slot);
     }
 
     public void setFilename(String filename) {
-        if (filename.length() > 11) {
+        if (filename.getBytes(NAME_CHARSET).length > 11) {
             throw new IllegalArgumentException("file name cannot be longer than 11 strings.");
         }
-        this.filename = filename;
+        store.setFilename(slot, filename);
     }
 
     public short getFilesize() {
-        return filesize;
+        return store.getFilesize(slot);
     }
 
     public void setFilesize(short filesize) {
         if (filesize < 0) {
             throw new IllegalArgumentException(" file size cannot be -ve.");
         }
-        this.filesize = filesize;
+        store.setFilesize(slot, filesize);
     }
 
     public short getFirstBlock() {
-        return firstBlock;
+        return store.getFirstBlock(slot);
     }
     public void setFirstBlock (short firstBlock){
-        this.firstBlock =firstBlock;
+        store.setFirstBlock(slot, firstBlock);
     }
     //helper method to check if this FEntry is in use
 
     public boolean is_in_use() {
-        return filename != null && !filename.isEmpty();
+        return !store.filename_equals(slot, new byte[0]);
     }
     
     //method to mark the entry as free
     public void mark_free() {
-        this.filename = "";
-        this.filesize = 0;
-        this.firstBlock = -1;
+        store.setFilename(slot, "");
+        store.setFilesize(slot, (short)0);
+        store.setFirstBlock(slot, (short)-1);
     }
     
     //calculating size
@@ -2,33 +2,34 @@ package ca.concordia.filesystem.datastructures;
 
 public class FNode { 
 
-    private int blockIndex;
-    private int next;
+    private final MetadataStore store;
+    private final int block; // Index of this block in the store
 
-    public FNode(int blockIndex) {
-        this.blockIndex = blockIndex;
-        this.next = -1;
+    public FNode(MetadataStore store, int block) {
+        this.store = store;
+        this.block = block;
     }
 
     // getter and setters
     public int getBlockIndex() {
-        return blockIndex;
+        return store.is_block_free(block) ? -1 : block;
     }
     
+    //-1 frees the block, any other value marks it used
     public void setBlockIndex(int blockIndex) {
-        this.blockIndex = blockIndex;
+        store.set_block_free(block, blockIndex == -1);
     }
     
     public int getNext() {
-        return next;
+        return store.getNext(block);
     }
     
     public void setNext(int next) {
-        this.next = next;
+        store.setNext(block, next);
     }
     
     //helper method to check if block is in use
     public boolean is_in_use() {
-        return blockIndex >= 0;  
+        return !store.is_block_free(block);
     }
 }
@@ -0,0 +1,54 @@
+package ca.concordia.filesystem.datastructures;
+
+import java.nio.ByteBuffer;
+
+//storage of all file entry and block metadata, FEntry and FNode are views over one slot of it
+public interface MetadataStore {
+
+    // file entries
+    String getFilename(int slot);
+
+    void setFilename(int slot, String filename);
+
+    //comparing a slot name with stored bytes, without building a String
+    boolean filename_equals(int slot, byte[] filename);
+
+    short getFilesize(int slot);
+
+    void setFilesize(int slot, short filesize);
+
+    short getFirstBlock(int slot);
+
+    void setFirstBlock(int slot, short firstBlock);
+
+    // blocks
+    int getNext(int block);
+
+    void setNext(int block, int next);
+
+    boolean is_block_free(int block);
+
+    void set_block_free(int block, boolean free);
+
+    //lowest free block, -1 if there is none
+    int next_free_block();
+
+    int free_block_count();
+
+    //reading and writing the on-disk layout
+    void load_from(ByteBuffer buffer);
+
+    void save_to(ByteBuffer buffer);
+
+    //size of the on-disk layout in bytes
+    int get_disk_size();
+
+    //undo log for batches: remembers the old value of every slot and block changed after start
+    void start_undo_log();
+
+    //restoring everything changed since start_undo_log and stopping the log
+    void roll_back();
+
+    //keeping the changes and stopping the log
+    void drop_undo_log();
+}
@@ -6,6 +6,8 @@ import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
 
 public class FileServer {
 
@@ -43,6 +45,7 @@ public class FileServer {
             PrintWriter writer = new PrintWriter(client_socket.getOutputStream(), true)
         ) {
             String line;
+            ClientSession session = new ClientSession();
             while ((line = reader.readLine()) != null) {
                 System.out.println("Received from client " + client_socket + ": " + line);
                 
@@ -52,7 +55,7 @@ public class FileServer {
                 }
                 
                 //process commands and send response back to client
-                String response = process_command(line);
+                String response = process_line(line, session);
                 writer.println(response);
             }
         } catch (Exception e) {
@@ -67,6 +70,31 @@ public class FileServer {
         }
     }
 
+    //state kept for one client between commands
+    static class ClientSession {
+        //mutations queued between BEGIN and COMMIT, null when no transaction is open
+        List<FileSystemManager.BatchOp> transaction = null;
+    }
+
+    //handling one line from a client, transaction commands keep state in the session
+    String process_line(String line, ClientSession session) {
+        String command = line.split(" ", 2)[0].toUpperCase();
+        if (command.equals("BEGIN")) {
+            if (session.transaction != null) return "ERROR: transaction already started";
+            session.transaction = new ArrayList<>();
+            return "SUCCESS: Transaction started";
+        }
+        if (command.equals("COMMIT") || command.equals("ABORT")) {
+            String response = end_transaction(command, session.transaction);
+            session.transaction = null;
+            return response;
+        }
+        if (session.transaction != null && is_mutation(command)) {
+            return queue_command(line, session.transaction);
+        }
+        return process_command(line);
+    }
+
     //method to handle commands in each client, seperated
     private String process_command(String command_line) {
         try {
@@ -95,6 +123,28 @@ public class FileServer {
                     fs_manager.write_file(parts[1], parts[2].getBytes());
                     return "SUCCESS: Written to '" + parts[1] + "'";
 
+                case "MREAD":
+                    String[] read_names = split_names(command_line);
+                    byte[][] contents = fs_manager.read_files(read_names);
+                    //same length-prefixed pairs as MWRITE
+                    StringBuilder result = new StringBuilder("SUCCESS: Contents:");
+                    for (int i = 0; i < read_names.length; i++) {
+                        String text = new String(contents[i]);
+                        result.append(' ').append(read_names[i]).append(' ').append(text.length()).append(' ').append(text);
+                    }
+                    return result.toString();
+
+                case "MCREATE":
+                case "MDELETE":
+                    List<FileSystemManager.BatchOp> ops = to_batch_ops(command_line);
+                    fs_manager.apply_batch(ops);
+                    return "SUCCESS: " + ops.size() + " files " + (command.equals("MCREATE") ? "created" : "deleted");
+
+                case "MWRITE":
+                    List<FileSystemManager.BatchOp> writes = to_batch_ops(command_line);
+                    fs_manager.apply_batch(writes);
+                    return "SUCCESS: Written to " + writes.size() + " files";
+
                 case "LIST":
                     String[] files = fs_manager.list_files();
                     if (files.length == 0) return "SUCCESS: No files";
@@ -107,4 +157,113 @@ public class FileServer {
             return "ERROR: " + e.getMessage();
         }
     }
+
+    //commands that change files and can be queued in a transaction
+    private boolean is_mutation(String command) {
+        switch (command) {
+            case "CREATE": case "DELETE": case "WRITE":
+            case "MCREATE": case "MDELETE": case "MWRITE":
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    //filenames of a batch command, separated by spaces
+    private String[] split_names(String command_line) throws Exception {
+        String[] parts = command_line.trim().split(" ", 2);
+        if (parts.length < 2 || parts[1].trim().isEmpty()) {
+            throw new Exception(parts[0].toUpperCase() + " needs filenames");
+        }
+        return parts[1].trim().split("\\s+");
+    }
+
+    //turning a mutation command into batch ops
+    //MWRITE takes length-prefixed pairs so content may hold any character:
+    //  MWRITE <name> <length> <content> <name> <length> <content> ...
+    //where length is the number of characters of content
+    List<FileSystemManager.BatchOp> to_batch_ops(String command_line) throws Exception {
+        String[] parts = command_line.split(" ", 3);
+        String command = parts[0].toUpperCase();
+        List<FileSystemManager.BatchOp> ops = new ArrayList<>();
+
+        switch (command) {
+            case "CREATE":
+            case "DELETE":
+                if (parts.length < 2 || parts[1].isEmpty()) throw new Exception(command + " needs filename");
+                ops.add(new FileSystemManager.BatchOp(command, parts[1], null));
+                break;
+
+            case "WRITE":
+                if (parts.length < 3) throw new Exception("WRITE needs filename and content");
+                ops.add(new FileSystemManager.BatchOp(command, parts[1], parts[2].getBytes()));
+                break;
+
+            case "MCREATE":
+            case "MDELETE":
+                for (String name : split_names(command_line)) {
+                    ops.add(new FileSystemManager.BatchOp(command.substring(1), name, null));
+                }
+                break;
+
+            case "MWRITE":
+                String[] args = command_line.split(" ", 2);
+                if (args.length < 2 || args[1].trim().isEmpty()) throw new Exception("MWRITE needs <name> <length> <content> pairs");
+                String pairs = args[1];
+                int pos = 0;
+                while (pos < pairs.length()) {
+                    int name_end = pairs.indexOf(' ', pos);
+                    int length_end = name_end == -1 ? -1 : pairs.indexOf(' ', name_end + 1);
+                    if (name_end <= pos || length_end == -1) throw new Exception("MWRITE needs <name> <length> <content> pairs");
+
+                    String name = pairs.substring(pos, name_end);
+                    int length;
+                    try {
+                        length = Integer.parseInt(pairs.substring(name_end + 1, length_end));
+                    } catch (NumberFormatException e) {
+                        throw new Exception("MWRITE bad length for '" + name + "'");
+                    }
+                    int content_end = length_end + 1 + length;
+                    if (length < 0 || content_end > pairs.length()) throw new Exception("MWRITE bad length for '" + name + "'");
+
+                    ops.add(new FileSystemManager.BatchOp("WRITE", name, pairs.substring(length_end + 1, content_end).getBytes()));
+
+                    //one space between pairs
+                    pos = content_end;
+                    if (pos < pairs.length()) {
+                        if (pairs.charAt(pos) != ' ') throw new Exception("MWRITE content of '" + name + "' is longer than its length");
+                        pos++;
+                    }
+                }
+                break;
+
+            default:
+                throw new Exception("Unknown command");
+        }
+        return ops;
+    }
+
+    //adding a mutation to the open transaction, nothing is applied before COMMIT
+    private String queue_command(String command_line, List<FileSystemManager.BatchOp> transaction) {
+        try {
+            List<FileSystemManager.BatchOp> ops = to_batch_ops(command_line);
+            transaction.addAll(ops);
+            return "SUCCESS: Queued " + ops.size() + " operations";
+        } catch (Exception e) {
+            return "ERROR: " + e.getMessage();
+        }
+    }
+
+    //COMMIT applies every queued mutation or none of them, ABORT drops them
+    private String end_transaction(String command, List<FileSystemManager.BatchOp> transaction) {
+        if (transaction == null) return "ERROR: no transaction started";
+        if (command.equals("ABORT")) return "SUCCESS: Transaction aborted";
+
+        try {
+            fs_manager.apply_batch(transaction);
+            return "SUCCESS: Transaction committed " + transaction.size() + " operations";
+        } catch (Exception e) {
+            return "ERROR: Transaction rolled back: " + e.getMessage();
+        }
+    }
 }
\ No newline at end of file
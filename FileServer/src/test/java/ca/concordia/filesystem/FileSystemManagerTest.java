@@ -0,0 +1,169 @@
+package ca.concordia.filesystem;
+
+import ca.concordia.filesystem.datastructures.ArrayMetadataStore;
+import ca.concordia.filesystem.datastructures.FEntry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileSystemManagerTest {
+
+    private static final int MAXFILES = 10;
+    private static final int MAXBLOCKS = 20;
+    private static final int BLOCK_SIZE = 128;
+
+    private File disk;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        disk = File.createTempFile("filesystem", ".dat");
+        disk.delete(); //empty file system is created when the file doesn't exist
+    }
+
+    @AfterEach
+    public void tearDown() {
+        disk.delete();
+    }
+
+    private FileSystemManager open() throws Exception {
+        return new FileSystemManager(disk.getPath(), MAXFILES, MAXBLOCKS, BLOCK_SIZE);
+    }
+
+    private ArrayMetadataStore load_disk() throws Exception {
+        ArrayMetadataStore store = new ArrayMetadataStore(MAXFILES, MAXBLOCKS);
+        store.load_from(ByteBuffer.wrap(Files.readAllBytes(disk.toPath())));
+        return store;
+    }
+
+    @Test
+    public void testReloadKeepsMetadata() throws Exception {
+        FileSystemManager fs = open();
+        fs.create_file("a");
+        fs.create_file("b");
+        fs.create_file("c");
+        fs.write_file("a", new byte[300]);
+        fs.write_file("b", new byte[10]);
+        fs.delete_file("c");
+        byte[] saved = Files.readAllBytes(disk.toPath());
+
+        FileSystemManager reloaded = open();
+        assertArrayEquals(new String[] {"a", "b"}, reloaded.list_files());
+        reloaded.apply_batch(List.of()); //empty batch saves to disk unchanged
+        assertArrayEquals(saved, Files.readAllBytes(disk.toPath()));
+
+        ArrayMetadataStore store = load_disk();
+        assertEquals("a", store.getFilename(0));
+        assertEquals(300, store.getFilesize(0));
+        assertEquals(0, store.getFirstBlock(0));
+        assertEquals(1, store.getNext(0));
+        assertEquals(2, store.getNext(1));
+        assertEquals(-1, store.getNext(2));
+        assertEquals("b", store.getFilename(1));
+        assertEquals(10, store.getFilesize(1));
+        assertEquals(3, store.getFirstBlock(1));
+        assertEquals(-1, store.getNext(3));
+        for (int i = 2; i < MAXFILES; i++) {
+            assertEquals("", store.getFilename(i));
+            assertEquals(-1, store.getFirstBlock(i));
+        }
+        assertEquals(MAXBLOCKS - 4, store.free_block_count());
+        assertEquals(4, store.next_free_block());
+    }
+
+    //volume written field by field like the original save_to_disk did
+    private byte[] write_baseline_volume() throws Exception {
+        try (RandomAccessFile file = new RandomAccessFile(disk, "rw")) {
+            String[] names = {"a", "b"};
+            short[] sizes = {300, 10};
+            short[] firstBlocks = {0, 3};
+            for (int i = 0; i < MAXFILES; i++) {
+                byte[] nameBytes = new byte[11];
+                byte[] name = (i < names.length ? names[i] : " ").getBytes();
+                System.arraycopy(name, 0, nameBytes, 0, name.length);
+                file.write(nameBytes);
+                file.writeShort(i < names.length ? sizes[i] : 0);
+                file.writeShort(i < names.length ? firstBlocks[i] : -1);
+            }
+            int[] nexts = {1, 2, -1, -1};
+            for (int i = 0; i < MAXBLOCKS; i++) {
+                file.writeInt(i < nexts.length ? i : -1);
+                file.writeInt(i < nexts.length ? nexts[i] : -1);
+            }
+        }
+        return Files.readAllBytes(disk.toPath());
+    }
+
+    @Test
+    public void testLoadsBaselineVolume() throws Exception {
+        byte[] baseline = write_baseline_volume();
+
+        FileSystemManager fs = open();
+        assertArrayEquals(new String[] {"a", "b"}, fs.list_files());
+        assertThrows(Exception.class, () -> fs.create_file("a"));
+        fs.apply_batch(List.of());
+        assertArrayEquals(baseline, Files.readAllBytes(disk.toPath()));
+
+        //new file gets the first block after the loaded chains
+        fs.create_file("c");
+        fs.write_file("c", new byte[1]);
+        ArrayMetadataStore store = load_disk();
+        assertEquals("c", store.getFilename(2));
+        assertEquals(4, store.getFirstBlock(2));
+        assertEquals(2, store.getNext(1));
+    }
+
+    @Test
+    public void testNameLimitCountsEncodedBytes() throws Exception {
+        FileSystemManager fs = open();
+        String tooLong = "\u00e9".repeat(6); //6 characters, 12 bytes
+        assertEquals("ERR: file is too large", assertThrows(Exception.class, () -> fs.create_file(tooLong)).getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new FEntry(new ArrayMetadataStore(1, 0), 0).setFilename(tooLong));
+
+        String name = "\u00e9".repeat(5); //10 bytes
+        fs.create_file(name);
+        assertEquals("ERR: file already exists", assertThrows(Exception.class, () -> fs.create_file(name)).getMessage());
+        assertArrayEquals(new String[] {name}, open().list_files());
+        fs.delete_file(name);
+        assertEquals(0, fs.list_files().length);
+    }
+
+    @Test
+    public void testFailingBatchRestoresState() throws Exception {
+        FileSystemManager fs = open();
+        fs.create_file("a");
+        fs.create_file("b");
+        fs.create_file("c");
+        fs.write_file("a", "x".repeat(300).getBytes());
+        fs.write_file("b", "bee".getBytes());
+        byte[] before = Files.readAllBytes(disk.toPath());
+        byte[][] contents = fs.read_files(new String[] {"a", "b", "c"});
+
+        List<FileSystemManager.BatchOp> ops = List.of(
+                new FileSystemManager.BatchOp("DELETE", "a", null),
+                new FileSystemManager.BatchOp("CREATE", "d", null),
+                new FileSystemManager.BatchOp("WRITE", "b", "y".repeat(500).getBytes()),
+                new FileSystemManager.BatchOp("WRITE", "d", "dee".getBytes()),
+                new FileSystemManager.BatchOp("DELETE", "nope", null));
+        assertEquals("ERR: file nope doesn't exist", assertThrows(Exception.class, () -> fs.apply_batch(ops)).getMessage());
+
+        fs.apply_batch(List.of()); //saves the rolled back metadata
+        assertArrayEquals(before, Files.readAllBytes(disk.toPath()));
+        byte[][] after = fs.read_files(new String[] {"a", "b", "c"});
+        for (int i = 0; i < contents.length; i++) {
+            assertArrayEquals(contents[i], after[i]);
+        }
+        assertThrows(Exception.class, () -> fs.read_file("d"));
+
+        //a later batch still applies normally
+        fs.apply_batch(List.of(new FileSystemManager.BatchOp("WRITE", "c", "see".getBytes())));
+        assertEquals("see", new String(fs.read_file("c")));
+    }
+}
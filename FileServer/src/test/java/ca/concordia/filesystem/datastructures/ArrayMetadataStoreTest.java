@@ -0,0 +1,125 @@
+package ca.concordia.filesystem.datastructures;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArrayMetadataStoreTest {
+
+    private static byte[] save(MetadataStore store) {
+        ByteBuffer buffer = ByteBuffer.allocate(store.get_disk_size());
+        store.save_to(buffer);
+        return buffer.array();
+    }
+
+    @Test
+    public void testNewStoreIsEmpty() {
+        ArrayMetadataStore store = new ArrayMetadataStore(3, 4);
+        for (int i = 0; i < 3; i++) {
+            assertEquals("", store.getFilename(i));
+            assertEquals(0, store.getFilesize(i));
+            assertEquals(-1, store.getFirstBlock(i));
+        }
+        assertEquals(4, store.free_block_count());
+        assertEquals(0, store.next_free_block());
+        assertEquals(-1, store.getNext(3));
+    }
+
+    @Test
+    public void testSaveLayout() {
+        ArrayMetadataStore store = new ArrayMetadataStore(2, 3);
+        store.setFilename(1, "abc");
+        store.setFilesize(1, (short)300);
+        store.setFirstBlock(1, (short)2);
+        store.set_block_free(2, false);
+        store.set_block_free(0, false);
+        store.setNext(2, 0);
+
+        ByteBuffer expected = ByteBuffer.allocate(2 * 15 + 3 * 8);
+        expected.put(new byte[11]).putShort((short)0).putShort((short)-1);
+        expected.put(new byte[] {'a', 'b', 'c', 0, 0, 0, 0, 0, 0, 0, 0}).putShort((short)300).putShort((short)2);
+        expected.putInt(0).putInt(-1);
+        expected.putInt(-1).putInt(-1);
+        expected.putInt(2).putInt(0);
+        assertArrayEquals(expected.array(), save(store));
+    }
+
+    @Test
+    public void testLoadRoundTrip() {
+        ArrayMetadataStore store = new ArrayMetadataStore(2, 3);
+        store.setFilename(0, "abcdefghijk");
+        store.setFilesize(0, (short)200);
+        store.setFirstBlock(0, (short)1);
+        store.set_block_free(1, false);
+        store.set_block_free(2, false);
+        store.setNext(1, 2);
+        byte[] saved = save(store);
+
+        ArrayMetadataStore loaded = new ArrayMetadataStore(2, 3);
+        loaded.load_from(ByteBuffer.wrap(saved));
+        assertEquals("abcdefghijk", loaded.getFilename(0));
+        assertEquals(200, loaded.getFilesize(0));
+        assertEquals(1, loaded.getFirstBlock(0));
+        assertEquals(2, loaded.getNext(1));
+        assertEquals(-1, loaded.getNext(2));
+        assertEquals("", loaded.getFilename(1));
+        assertEquals(-1, loaded.getFirstBlock(1));
+        assertTrue(loaded.is_block_free(0));
+        assertFalse(loaded.is_block_free(1));
+        assertEquals(1, loaded.free_block_count());
+        assertArrayEquals(saved, save(loaded));
+    }
+
+    private static ArrayMetadataStore sample_store() {
+        ArrayMetadataStore store = new ArrayMetadataStore(3, 4);
+        store.setFilename(0, "a");
+        store.setFilesize(0, (short)200);
+        store.setFirstBlock(0, (short)0);
+        store.set_block_free(0, false);
+        store.set_block_free(1, false);
+        store.setNext(0, 1);
+        return store;
+    }
+
+    @Test
+    public void testRollBackRestoresTouchedSlotsAndBlocks() {
+        ArrayMetadataStore store = sample_store();
+        byte[] before = save(store);
+
+        store.start_undo_log();
+        store.setFilename(0, "");
+        store.setFirstBlock(0, (short)-1);
+        store.set_block_free(0, true);
+        store.set_block_free(1, true);
+        store.setNext(0, -1);
+        store.setFilename(1, "b");
+        store.setFirstBlock(1, (short)0);
+        store.set_block_free(0, false);
+        store.setNext(0, 3);
+        store.set_block_free(3, false);
+        store.roll_back();
+
+        assertArrayEquals(before, save(store));
+        assertEquals(2, store.free_block_count());
+    }
+
+    @Test
+    public void testDropUndoLogKeepsChanges() {
+        ArrayMetadataStore store = sample_store();
+        store.start_undo_log();
+        store.setFilename(1, "b");
+        store.set_block_free(2, false);
+        store.drop_undo_log();
+        byte[] changed = save(store);
+
+        //nothing is logged after the drop, so a roll back restores nothing
+        store.setFilename(2, "c");
+        store.roll_back();
+        assertEquals("b", store.getFilename(1));
+        assertEquals("c", store.getFilename(2));
+        store.setFilename(2, "");
+        assertArrayEquals(changed, save(store));
+    }
+}
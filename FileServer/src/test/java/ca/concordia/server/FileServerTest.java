@@ -0,0 +1,122 @@
+package ca.concordia.server;
+
+import ca.concordia.filesystem.FileSystemManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FileServerTest {
+
+    private File disk;
+    private FileServer server;
+    private FileServer.ClientSession session;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        disk = File.createTempFile("fileserver", ".dat");
+        disk.delete(); //empty file system is created when the file doesn't exist
+        server = new FileServer(0, disk.getPath(), 10 * 128);
+        session = new FileServer.ClientSession();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        disk.delete();
+    }
+
+    private String send(String line) {
+        return server.process_line(line, session);
+    }
+
+    @Test
+    public void testMwriteLengthPrefixedPairs() throws Exception {
+        List<FileSystemManager.BatchOp> ops = server.to_batch_ops("MWRITE a 11 hello world b 9 x | y | z c 0 ");
+        assertEquals(3, ops.size());
+        assertEquals("WRITE", ops.get(0).getCommand());
+        assertEquals("a", ops.get(0).getFileName());
+        assertEquals("hello world", new String(ops.get(0).getContent()));
+        assertEquals("b", ops.get(1).getFileName());
+        assertEquals("x | y | z", new String(ops.get(1).getContent()));
+        assertEquals("c", ops.get(2).getFileName());
+        assertEquals("", new String(ops.get(2).getContent()));
+    }
+
+    @Test
+    public void testMwriteBadLengths() {
+        assertEquals("MWRITE bad length for 'a'", assertThrows(Exception.class, () -> server.to_batch_ops("MWRITE a 50 short")).getMessage());
+        assertEquals("MWRITE bad length for 'a'", assertThrows(Exception.class, () -> server.to_batch_ops("MWRITE a x hi")).getMessage());
+        assertEquals("MWRITE bad length for 'a'", assertThrows(Exception.class, () -> server.to_batch_ops("MWRITE a -1 hi")).getMessage());
+        assertEquals("MWRITE content of 'a' is longer than its length",
+                assertThrows(Exception.class, () -> server.to_batch_ops("MWRITE a 1 hi")).getMessage());
+        assertEquals("MWRITE needs <name> <length> <content> pairs", assertThrows(Exception.class, () -> server.to_batch_ops("MWRITE ")).getMessage());
+        assertEquals("MWRITE needs <name> <length> <content> pairs", assertThrows(Exception.class, () -> server.to_batch_ops("MWRITE a")).getMessage());
+    }
+
+    @Test
+    public void testBatchCommandsNeedFilenames() {
+        assertEquals("ERROR: MREAD needs filenames", send("MREAD "));
+        assertEquals("ERROR: MCREATE needs filenames", send("MCREATE "));
+        assertEquals("ERROR: MDELETE needs filenames", send("MDELETE"));
+    }
+
+    @Test
+    public void testBatchCommands() {
+        assertEquals("SUCCESS: 3 files created", send("MCREATE a b c"));
+        assertEquals("SUCCESS: Written to 2 files", send("MWRITE a 11 hello world b 9 x | y | z"));
+        assertEquals("SUCCESS: Contents: a 11 hello world b 9 x | y | z c 0 ", send("MREAD a b c"));
+        assertEquals("SUCCESS: 2 files deleted", send("MDELETE b c"));
+        assertEquals("SUCCESS: Files: a", send("LIST"));
+    }
+
+    @Test
+    public void testFailingBatchAppliesNothing() {
+        send("MCREATE a b c");
+        assertEquals("ERROR: ERR: file already exists", send("MCREATE d a"));
+        assertEquals("SUCCESS: Files: a, b, c", send("LIST"));
+    }
+
+    @Test
+    public void testCommit() {
+        send("MCREATE a b c");
+        assertEquals("SUCCESS: Transaction started", send("BEGIN"));
+        assertEquals("ERROR: transaction already started", send("BEGIN"));
+        assertEquals("SUCCESS: Queued 1 operations", send("CREATE d"));
+        assertEquals("SUCCESS: Queued 2 operations", send("MWRITE d 2 dd a 3 new"));
+        assertEquals("SUCCESS: Files: a, b, c", send("LIST"));
+        assertEquals("SUCCESS: Transaction committed 3 operations", send("COMMIT"));
+        assertEquals("SUCCESS: Contents: a 3 new d 2 dd", send("MREAD a d"));
+        assertEquals("ERROR: no transaction started", send("COMMIT"));
+    }
+
+    @Test
+    public void testAbortDropsSingleAndBatchCommands() {
+        send("MCREATE a b c d");
+        send("WRITE a new");
+        assertEquals("SUCCESS: Transaction started", send("BEGIN"));
+        assertEquals("SUCCESS: Queued 1 operations", send("MWRITE a 7 changed"));
+        assertEquals("SUCCESS: Queued 2 operations", send("MDELETE b c"));
+        assertEquals("SUCCESS: Queued 1 operations", send("WRITE d gone"));
+        assertEquals("SUCCESS: Transaction aborted", send("ABORT"));
+        assertEquals("SUCCESS: Content: new", send("READ a"));
+        assertEquals("SUCCESS: Content: ", send("READ d"));
+        assertEquals("SUCCESS: Files: a, b, c, d", send("LIST"));
+    }
+
+    @Test
+    public void testFailingCommitRollsBack() {
+        send("MCREATE a b");
+        send("WRITE a new");
+        send("BEGIN");
+        send("WRITE a rolled");
+        send("MDELETE b");
+        send("DELETE nope");
+        assertEquals("ERROR: Transaction rolled back: ERR: file nope doesn't exist", send("COMMIT"));
+        assertEquals("SUCCESS: Content: new", send("READ a"));
+        assertEquals("SUCCESS: Files: a, b", send("LIST"));
+    }
+}